@@ -0,0 +1,60 @@
+package wastemanagement;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Recording one route and its collections into the cost buckets, and the daily analysis
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class CostBenchmark {
+    @Param({"1000", "10000"})
+    public int bins;
+    
+    private final LocalDate today = LocalDate.of(2024, 6, 3);
+    private List<SmartBin> fleet;
+    private WasteCategory[] categories;
+    private Route route;
+    private CostAnalyzer costAnalyzer;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        fleet = BinFleetStore.syntheticFleet(bins, 42L);
+        DistanceService distances = new DistanceService();
+        route = new Route(Depot.CENTRAL, fleet, distances);
+        AIWasteSorter sorter = new AIWasteSorter(42L);
+        categories = new WasteCategory[bins];
+        for (int i = 0; i < bins; i++) {
+            SmartBin bin = fleet.get(i);
+            categories[i] = sorter.sortWaste(new WasteData(bin.getId(), bin.getWeight(), bin.getWasteType(),
+                bin.getFillLevel())).getCategory();
+        }
+        // Formatted in full but written nowhere, so the report is built as on the console
+        costAnalyzer = new CostAnalyzer(distances,
+            new ConsoleEventSink(EventLevel.DEBUG, new PrintStream(OutputStream.nullOutputStream())));
+        record();
+    }
+    
+    @Benchmark
+    public Object record() {
+        costAnalyzer.recordRoute(today, "TRUCK-1", route);
+        for (int i = 0; i < bins; i++) {
+            SmartBin bin = fleet.get(i);
+            costAnalyzer.recordCollection(today, "TRUCK-1", bin.getLocation(), categories[i], bin.getWeight());
+        }
+        return costAnalyzer;
+    }
+    
+    @Benchmark
+    public Object analyzeDailyCosts() {
+        costAnalyzer.analyzeDailyCosts(today);
+        return costAnalyzer;
+    }
+}
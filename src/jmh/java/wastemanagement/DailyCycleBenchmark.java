@@ -0,0 +1,57 @@
+package wastemanagement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// The full daily cycle on a synthetic fleet with stage metrics on and off, and the
+// cost of one begin/end pair (which includes sampling the helper threads)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class DailyCycleBenchmark {
+    @Param({"10000"})
+    public int bins;
+    
+    @Param({"true", "false"})
+    public boolean metrics;
+    
+    private final long[] mark = new long[2];
+    private WasteManagementSystem system;
+    private int stage;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Truck> trucks = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) trucks.add(new Truck("TRUCK-" + i, 8_000.0, 8.0));
+        system = new WasteManagementSystem(BinFleetStore.syntheticFleet(bins, 42L), trucks, 42L);
+        system.setEventSink(EventSink.DISCARD);
+        system.getMetrics().setEnabled(metrics);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        system.close();
+    }
+    
+    @Benchmark
+    public Object runDailyOperations() {
+        return system.runDailyOperations();
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public long stageMark() {
+        WasteMetrics.Stage[] stages = WasteMetrics.Stage.values();
+        WasteMetrics instruments = system.getMetrics();
+        instruments.begin(mark);
+        instruments.end(stages[stage++ % stages.length], mark);
+        return mark[0];
+    }
+}
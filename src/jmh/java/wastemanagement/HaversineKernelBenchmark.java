@@ -0,0 +1,68 @@
+package wastemanagement;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Bulk kernel against per-pair DistanceService.haversine on the same points: 1-to-N for
+// each path, and a matrix over the first thousand points
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class HaversineKernelBenchmark {
+    private static final int MATRIX_POINTS = 1_000;
+    
+    @Param({"100000"})
+    public int points;
+    
+    private double[] latDeg;
+    private double[] lonDeg;
+    private double[] lat;
+    private double[] lon;
+    private double[] cos;
+    private double[] row;
+    private double[] matrix;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<SmartBin> fleet = BinFleetStore.syntheticFleet(points, 42L);
+        latDeg = new double[points];
+        lonDeg = new double[points];
+        for (int i = 0; i < points; i++) {
+            latDeg[i] = fleet.get(i).getLatitude();
+            lonDeg[i] = fleet.get(i).getLongitude();
+        }
+        lat = HaversineKernel.toRadians(latDeg);
+        lon = HaversineKernel.toRadians(lonDeg);
+        cos = HaversineKernel.cosines(lat);
+        row = new double[points];
+        matrix = new double[MATRIX_POINTS * MATRIX_POINTS];
+    }
+    
+    @Benchmark
+    public double[] perPair() {
+        for (int i = 0; i < points; i++) row[i] = DistanceService.haversine(latDeg[0], lonDeg[0], latDeg[i], lonDeg[i]);
+        return row;
+    }
+    
+    @Benchmark
+    public double[] oneToMany() {
+        HaversineKernel.oneToMany(lat[0], lon[0], cos[0], lat, lon, cos, 0, points, row);
+        return row;
+    }
+    
+    @Benchmark
+    public double[] equirectangular() {
+        HaversineKernel.oneToManyFast(lat[0], lon[0], cos[0], lat, lon, cos, 0, points, row);
+        return row;
+    }
+    
+    @Benchmark
+    public double[] matrix() {
+        HaversineKernel.matrix(lat, lon, cos, MATRIX_POINTS, matrix);
+        return matrix;
+    }
+}
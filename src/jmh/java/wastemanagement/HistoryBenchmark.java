@@ -0,0 +1,73 @@
+package wastemanagement;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Replaying one reading and one collection per bin into a columnar store, and restoring
+// the fleet from a checkpoint as a restart would
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class HistoryBenchmark {
+    @Param({"10000", "100000"})
+    public int bins;
+    
+    private File directory;
+    private CollectionHistoryLog log;
+    private BinFleetStore store;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("waste-history").toFile();
+        log = new CollectionHistoryLog(directory);
+        long now = 1_717_394_400_000L; // 2024-06-03 06:00 UTC
+        SplittableRandom random = new SplittableRandom(42L);
+        for (int i = 0; i < bins; i++) {
+            log.append(CollectionHistoryLog.KIND_COLLECTION, now - 86_400_000L, i, 0, 0.0, -1);
+            log.append(CollectionHistoryLog.KIND_READING, now, i, random.nextInt(100),
+                       random.nextDouble() * 100, random.nextInt(4));
+        }
+        store = new BinFleetStore(bins);
+        for (int i = 0; i < bins; i++) {
+            store.add("BIN" + i, "District " + (i % 64), 40.7, -74.0);
+        }
+        log.checkpoint(BinFleetStore.syntheticFleet(bins, 42L));
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        log.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) file.delete();
+        }
+        directory.delete();
+    }
+    
+    @Benchmark
+    public long replay() throws IOException {
+        return log.replay((kind, timestampMillis, binIndex, fillLevel, weight, wasteTypeCode) -> {
+            if (kind == CollectionHistoryLog.KIND_READING) {
+                store.setReading(binIndex, fillLevel, weight, WasteType.fromCode(wasteTypeCode));
+            } else if (kind == CollectionHistoryLog.KIND_COLLECTION) {
+                store.setLastCollectionMillis(binIndex, timestampMillis);
+            }
+        });
+    }
+    
+    @Benchmark
+    public Object restore() throws IOException {
+        List<SmartBin> restored = new ArrayList<>();
+        log.restore(restored);
+        return restored;
+    }
+}
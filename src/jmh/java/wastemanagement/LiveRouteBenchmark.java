@@ -0,0 +1,40 @@
+package wastemanagement;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Mid-route patching: splices a flagged bin into a planned route at the cheapest
+// position and cancels it again
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class LiveRouteBenchmark {
+    private static final int FLAGGED = 100;
+    
+    @Param({"100", "500", "1000"})
+    public int stops;
+    
+    private List<SmartBin> fleet;
+    private LiveRoute live;
+    private int next;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        fleet = BinFleetStore.syntheticFleet(stops + FLAGGED, 42L);
+        DistanceService distances = new DistanceService();
+        Route planned = new Route(Depot.CENTRAL, fleet.subList(0, stops), distances);
+        live = new LiveRoute(new Truck("TRUCK-1", Double.MAX_VALUE, Double.MAX_VALUE), planned, distances);
+    }
+    
+    @Benchmark
+    public Object insertAndRemove() {
+        SmartBin flagged = fleet.get(stops + next++ % FLAGGED);
+        live.insert(flagged);
+        live.remove(flagged);
+        return live;
+    }
+}
@@ -0,0 +1,59 @@
+package wastemanagement;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Contraction hierarchy on a 3,600-node synthetic street grid: preprocessing, point
+// queries and a many-to-many table
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class RoadNetworkBenchmark {
+    private static final int GRID = 60;
+    private static final int QUERIES = 1_000;
+    private static final int TABLE_POINTS = 100;
+    
+    private RoadNetwork network;
+    private ContractionHierarchy hierarchy;
+    private int[] pairs;
+    private int[] points;
+    private int[] table;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        network = RoadNetwork.syntheticGrid(GRID, 42L);
+        hierarchy = new ContractionHierarchy(network);
+        SplittableRandom random = new SplittableRandom(42L);
+        pairs = new int[2 * QUERIES];
+        for (int i = 0; i < pairs.length; i++) pairs[i] = random.nextInt(network.nodeCount());
+        points = Arrays.copyOf(pairs, TABLE_POINTS);
+        table = new int[TABLE_POINTS * TABLE_POINTS];
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5)
+    public Object preprocess() {
+        return new ContractionHierarchy(network);
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public long query() {
+        long total = 0;
+        for (int i = 0; i < QUERIES; i++) total += hierarchy.distance(pairs[2 * i], pairs[2 * i + 1]);
+        return total;
+    }
+    
+    @Benchmark
+    public int[] table() {
+        hierarchy.table(points, table);
+        return table;
+    }
+}
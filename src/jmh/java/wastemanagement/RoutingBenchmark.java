@@ -0,0 +1,56 @@
+package wastemanagement;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Route construction and route distance over seeded synthetic fleets
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class RoutingBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int bins;
+    
+    private List<SmartBin> fleet;
+    private RouteOptimizer nearestNeighbor;
+    private RouteOptimizer localSearch;
+    private DistanceService warmDistances;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        fleet = BinFleetStore.syntheticFleet(bins, 42L);
+        nearestNeighbor = new RouteOptimizer(new DistanceService(), Depot.CENTRAL);
+        localSearch = new RouteOptimizer(new DistanceService(), Depot.CENTRAL);
+        localSearch.setEngine(new LocalSearchRouteEngine(100));
+        warmDistances = new DistanceService();
+        new Route(Depot.CENTRAL, fleet, warmDistances);
+    }
+    
+    @Benchmark
+    public Object nearestNeighbor() {
+        return nearestNeighbor.calculateRoute(fleet);
+    }
+    
+    // Bounded by its 100 ms search budget; reported for the quality/time trade-off
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5)
+    public Object localSearch() {
+        return localSearch.calculateRoute(fleet);
+    }
+    
+    @Benchmark
+    public double distanceCold() {
+        return new Route(Depot.CENTRAL, fleet, new DistanceService()).getTotalDistance();
+    }
+    
+    @Benchmark
+    public double distanceWarm() {
+        return new Route(Depot.CENTRAL, fleet, warmDistances).getTotalDistance();
+    }
+}
@@ -0,0 +1,54 @@
+package wastemanagement;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Scheduling the whole fleet under access windows and draining it into batches, and
+// re-keying scheduled bins one at a time as sensor readings arrive
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class SchedulerBenchmark {
+    private static final int REKEYS = 1_000;
+    
+    @Param({"1000", "10000", "100000"})
+    public int bins;
+    
+    private final LocalDateTime now = LocalDateTime.of(2024, 6, 3, 6, 0);
+    private List<SmartBin> fleet;
+    private List<Truck> trucks;
+    private CollectionScheduler scheduler;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        fleet = BinFleetStore.syntheticFleet(bins, 42L);
+        trucks = Arrays.asList(new Truck("TRUCK-1", 8_000.0, 8.0), new Truck("TRUCK-2", 8_000.0, 8.0));
+        scheduler = new CollectionScheduler(fleet);
+        for (int district = 0; district < 16; district++) {
+            scheduler.setWindow("District " + district, district < 8 ? AccessWindow.NIGHT : AccessWindow.MORNING);
+        }
+        for (SmartBin bin : fleet) scheduler.schedule(bin, now);
+    }
+    
+    @Benchmark
+    public Object scheduleAndDrain() {
+        for (SmartBin bin : fleet) scheduler.schedule(bin, now);
+        return scheduler.drain(now, trucks);
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(REKEYS)
+    public Object reprioritize() {
+        for (int i = 0; i < REKEYS; i++) {
+            SmartBin bin = fleet.get(i % bins);
+            scheduler.onBinUpdated(i % bins, bin, bin.getFillLevel());
+        }
+        return scheduler;
+    }
+}
@@ -0,0 +1,42 @@
+package wastemanagement;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// One reading per bin through the striped pipeline, as in the daily sensor update, with
+// every reading applied before the round counts as done. Readings per second is
+// bins divided by the reported time per round.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class SensorIngestionBenchmark {
+    @Param({"10000", "100000"})
+    public int bins;
+    
+    private SimulatedSensorProducer producer;
+    private SensorIngestionPipeline pipeline;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<SmartBin> fleet = BinFleetStore.syntheticFleet(bins, 42L);
+        producer = new SimulatedSensorProducer(42L);
+        pipeline = new SensorIngestionPipeline(fleet, SensorIngestionPipeline.defaultStripeCount(), 1 << 14,
+            SensorIngestionPipeline.OverflowPolicy.BLOCK);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pipeline.close();
+    }
+    
+    @Benchmark
+    public Object ingestRound() {
+        producer.publishRound(pipeline);
+        pipeline.awaitQuiescent();
+        return pipeline;
+    }
+}
@@ -0,0 +1,50 @@
+package wastemanagement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Per-item and batched classification of one batch of bin readings
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class SortingBenchmark {
+    @Param({"1000", "10000"})
+    public int items;
+    
+    private AIWasteSorter sorter;
+    private List<WasteData> readings;
+    private byte[] typeCodes;
+    private int[] categoryIds;
+    private double[] confidences;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        sorter = new AIWasteSorter(42L);
+        readings = new ArrayList<>(items);
+        typeCodes = new byte[items];
+        for (SmartBin bin : BinFleetStore.syntheticFleet(items, 42L)) {
+            typeCodes[readings.size()] = (byte) WasteType.fromLabel(bin.getWasteType()).code();
+            readings.add(new WasteData(bin.getId(), bin.getWeight(), bin.getWasteType(), bin.getFillLevel()));
+        }
+        categoryIds = new int[items];
+        confidences = new double[items];
+    }
+    
+    @Benchmark
+    public void sortWaste(Blackhole blackhole) {
+        for (WasteData reading : readings) blackhole.consume(sorter.sortWaste(reading));
+    }
+    
+    @Benchmark
+    public void sortBatch(Blackhole blackhole) {
+        sorter.sortBatch(typeCodes, 0, items, categoryIds, confidences);
+        blackhole.consume(categoryIds);
+        blackhole.consume(confidences);
+    }
+}
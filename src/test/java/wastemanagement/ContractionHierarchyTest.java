@@ -0,0 +1,57 @@
+package wastemanagement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+// Point queries and tables from the hierarchy against plain Dijkstra on the synthetic grid
+class ContractionHierarchyTest {
+    private static final int GRID = 60;
+    private static final int POINTS = 100;
+    private static final int SOURCES = 10;
+    
+    @Test
+    void matchesDijkstra() {
+        RoadNetwork network = RoadNetwork.syntheticGrid(GRID, 42L);
+        ContractionHierarchy hierarchy = new ContractionHierarchy(network);
+        SplittableRandom random = new SplittableRandom(42L);
+        int[] points = new int[POINTS];
+        for (int i = 0; i < POINTS; i++) points[i] = random.nextInt(network.nodeCount());
+        int[] table = new int[POINTS * POINTS];
+        hierarchy.table(points, table);
+        
+        for (int a = 0; a < SOURCES; a++) {
+            long[] expected = dijkstra(network, points[a]);
+            for (int b = 0; b < POINTS; b++) {
+                long want = expected[points[b]] == Long.MAX_VALUE ? ContractionHierarchy.UNREACHABLE : expected[points[b]];
+                assertEquals(want, hierarchy.distance(points[a], points[b]), "distance " + points[a] + " -> " + points[b]);
+                assertEquals(want, table[a * POINTS + b], "table " + points[a] + " -> " + points[b]);
+            }
+        }
+    }
+    
+    private static long[] dijkstra(RoadNetwork network, int source) {
+        long[] distance = new long[network.nodeCount()];
+        Arrays.fill(distance, Long.MAX_VALUE);
+        distance[source] = 0;
+        PriorityQueue<long[]> queue = new PriorityQueue<>(Comparator.comparingLong((long[] entry) -> entry[0]));
+        queue.add(new long[] {0, source});
+        while (!queue.isEmpty()) {
+            long[] entry = queue.poll();
+            int u = (int) entry[1];
+            if (entry[0] > distance[u]) continue;
+            for (int e = network.firstEdge(u); e < network.firstEdge(u + 1); e++) {
+                long candidate = entry[0] + network.meters(e);
+                if (candidate < distance[network.head(e)]) {
+                    distance[network.head(e)] = candidate;
+                    queue.add(new long[] {candidate, network.head(e)});
+                }
+            }
+        }
+        return distance;
+    }
+}
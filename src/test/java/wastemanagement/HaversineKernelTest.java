@@ -0,0 +1,140 @@
+package wastemanagement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+// Every kernel entry point against per-pair DistanceService.haversine on a seeded fleet:
+// 1-to-N over a range and over listed indices, the equirectangular path, the matrix and
+// polyline lengths
+class HaversineKernelTest {
+    private static final int POINTS = 10_000;
+    private static final int SOURCES = 200;
+    private static final int MATRIX_POINTS = 300;
+    private static final double EXACT_KM = 1e-9;
+    
+    private static List<SmartBin> fleet;
+    private static double[] latDeg;
+    private static double[] lonDeg;
+    private static double[] lat;
+    private static double[] lon;
+    private static double[] cos;
+    
+    @BeforeAll
+    static void buildFleet() {
+        fleet = BinFleetStore.syntheticFleet(POINTS, 42L);
+        latDeg = new double[POINTS];
+        lonDeg = new double[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            latDeg[i] = fleet.get(i).getLatitude();
+            lonDeg[i] = fleet.get(i).getLongitude();
+        }
+        lat = HaversineKernel.toRadians(latDeg);
+        lon = HaversineKernel.toRadians(lonDeg);
+        cos = HaversineKernel.cosines(lat);
+    }
+    
+    @Test
+    void fleetDistancesMatchHaversine() {
+        double[] row = new double[POINTS];
+        double[] fast = new double[POINTS];
+        
+        double exactError = 0.0;
+        double fastError = 0.0;
+        for (int a = 0; a < SOURCES; a++) {
+            HaversineKernel.oneToMany(lat[a], lon[a], cos[a], lat, lon, cos, 0, POINTS, row);
+            HaversineKernel.oneToManyFast(lat[a], lon[a], cos[a], lat, lon, cos, 0, POINTS, fast);
+            for (int b = 0; b < POINTS; b++) {
+                double expected = DistanceService.haversine(latDeg[a], lonDeg[a], latDeg[b], lonDeg[b]);
+                exactError = Math.max(exactError, Math.abs(row[b] - expected));
+                if (expected > 0.01 && expected <= HaversineKernel.EQUIRECTANGULAR_MAX_KM) {
+                    fastError = Math.max(fastError, Math.abs(fast[b] - expected) / expected);
+                }
+            }
+        }
+        assertTrue(exactError < EXACT_KM, "max |exact - haversine| = " + exactError + " km");
+        assertTrue(fastError < HaversineKernel.EQUIRECTANGULAR_MAX_ERROR,
+            "max equirectangular relative error = " + fastError);
+    }
+    
+    @Test
+    void indexedRowMatchesHaversine() {
+        int[] indices = new int[POINTS / 2];
+        for (int k = 0; k < indices.length; k++) indices[k] = (int) ((k * 7919L) % POINTS);
+        double[] row = new double[indices.length];
+        HaversineKernel.oneToMany(lat[0], lon[0], cos[0], lat, lon, cos, indices, indices.length, row);
+        for (int k = 0; k < indices.length; k++) {
+            int i = indices[k];
+            double expected = DistanceService.haversine(latDeg[0], lonDeg[0], latDeg[i], lonDeg[i]);
+            assertEquals(expected, row[k], EXACT_KM, "0 -> " + i);
+        }
+    }
+    
+    @Test
+    void matrixMatchesHaversine() {
+        double[] matrix = new double[MATRIX_POINTS * MATRIX_POINTS];
+        Arrays.fill(matrix, Double.NaN);
+        HaversineKernel.matrix(lat, lon, cos, MATRIX_POINTS, matrix);
+        for (int a = 0; a < MATRIX_POINTS; a++) {
+            for (int b = 0; b < MATRIX_POINTS; b++) {
+                double expected = DistanceService.haversine(latDeg[a], lonDeg[a], latDeg[b], lonDeg[b]);
+                assertEquals(expected, matrix[a * MATRIX_POINTS + b], EXACT_KM, a + " -> " + b);
+            }
+        }
+    }
+    
+    // The kernel over the coordinate arrays and DistanceService over the bins, against
+    // the legs summed one by one
+    @Test
+    void pathLengthMatchesHaversine() {
+        double expected = 0.0;
+        for (int i = 1; i < POINTS; i++) {
+            expected += DistanceService.haversine(latDeg[i - 1], lonDeg[i - 1], latDeg[i], lonDeg[i]);
+        }
+        double tolerance = EXACT_KM * POINTS;
+        assertEquals(expected, HaversineKernel.pathLength(lat, lon, cos, POINTS), tolerance);
+        assertEquals(expected, new DistanceService().pathLength(fleet), tolerance);
+        assertEquals(0.0, HaversineKernel.pathLength(lat, lon, cos, 1), 0.0);
+    }
+    
+    // The synthetic fleet sits at one city's latitude, so also sweep the bound where it is
+    // tightest: pairs out to just under the distance limit, in every direction, up to 70°
+    // either side of the equator
+    @Test
+    void equirectangularWithinBoundEverywhere() {
+        double[] kilometres = { 1.0, 25.0, HaversineKernel.EQUIRECTANGULAR_MAX_KM * 0.999 };
+        double fastError = 0.0;
+        for (int latitude = -70; latitude <= 70; latitude += 10) {
+            for (int bearing = 0; bearing < 360; bearing += 15) {
+                for (double km : kilometres) {
+                    fastError = Math.max(fastError, equirectangularError(latitude, bearing, km));
+                }
+            }
+        }
+        assertTrue(fastError < HaversineKernel.EQUIRECTANGULAR_MAX_ERROR,
+            "max equirectangular relative error = " + fastError);
+    }
+    
+    // Relative error of the equirectangular path for the pair from (latitude, 0) to the
+    // point km away along the bearing, against DistanceService.haversine
+    private static double equirectangularError(double latitudeDeg, double bearingDeg, double km) {
+        double angle = km / DistanceService.EARTH_RADIUS_KM;
+        double bearing = Math.toRadians(bearingDeg);
+        double lat1 = Math.toRadians(latitudeDeg);
+        double lat2 = Math.asin(Math.sin(lat1) * Math.cos(angle)
+                                + Math.cos(lat1) * Math.sin(angle) * Math.cos(bearing));
+        double lon2 = Math.atan2(Math.sin(bearing) * Math.sin(angle) * Math.cos(lat1),
+                                 Math.cos(angle) - Math.sin(lat1) * Math.sin(lat2));
+        double[] lat = { lat1, lat2 };
+        double[] lon = { 0.0, lon2 };
+        double[] cos = HaversineKernel.cosines(lat);
+        double[] fast = new double[2];
+        HaversineKernel.oneToManyFast(lat[0], lon[0], cos[0], lat, lon, cos, 0, 2, fast);
+        double expected = DistanceService.haversine(latitudeDeg, 0.0, Math.toDegrees(lat2), Math.toDegrees(lon2));
+        return Math.abs(fast[1] - expected) / expected;
+    }
+}